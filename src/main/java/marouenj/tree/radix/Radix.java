@@ -1,6 +1,11 @@
 package marouenj.tree.radix;
 
+import java.util.AbstractMap;
 import java.util.Iterator;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 /**
  * A compact prefix tree that maps a key (string) to a value (generic).
@@ -241,7 +246,7 @@ public class Radix<A> {
 						curr.children.put(key, neW);
 					} else if (curr.children.size() == 1) { // possibility to merge
 						String onlyKey = curr.children.firstKey();
-						if (curr instanceof WithValue<?>) {
+						if (curr instanceof WithValue<?> || prev == null) { // nothing to merge into (root has no key)
 						} else {
 							prev.children.remove(keyPrefix);
 							prev.children.put(keyPrefix + onlyKey, curr.children.get(onlyKey));
@@ -266,6 +271,116 @@ public class Radix<A> {
 		}
 	}
 	
+	/**
+	 * Checks whether at least one key starts with the prefix.
+	 * Unlike 'exist', intermediate prefixes with no key below them do not count, and the prefix may end inside a node's key.
+	 * 
+	 * @param prefix
+	 * @return True if a key starts with the prefix.
+	 */
+	public boolean prefixed(String prefix) {
+		Map.Entry<String, Node<A>> top = descend(prefix);
+		return top != null && Radix.holdsValue(top.getValue());
+	}
+	
+	/**
+	 * Collects the key/value pairs whose key starts with the prefix.
+	 * The empty prefix collects the whole tree.
+	 * 
+	 * @param prefix
+	 * @return The matching pairs, ordered by key. Empty if the prefix does not exist.
+	 */
+	public SortedMap<String, A> scan(String prefix) {
+		SortedMap<String, A> entries = new TreeMap<>();
+		scan(prefix, entries::put);
+		return entries;
+	}
+	
+	/**
+	 * Visits the key/value pairs whose key starts with the prefix, in key order.
+	 * 
+	 * @param prefix
+	 * @param visitor Called once per matching pair.
+	 */
+	public void scan(String prefix, BiConsumer<String, ? super A> visitor) {
+		Map.Entry<String, Node<A>> top = descend(prefix);
+		if (top != null) {
+			Radix.collect(top.getValue(), top.getKey(), visitor);
+		}
+	}
+	
+	/**
+	 * Finds the highest node whose key starts with the prefix.
+	 * 
+	 * @return The node along with its full key. Null if the prefix does not exist.
+	 */
+	private Map.Entry<String, Node<A>> descend(String prefix) {
+		if (prefix == null) {
+			return null;
+		}
+		
+		Node<A> curr = root; // traversing node
+		String path = ""; // keys of the traversed nodes
+		String key = prefix;
+		
+		while (key.length() > 0) {
+			Iterator<String> itr = curr.children.keySet().iterator();
+
+			String key2 = null;
+			
+			int commonPrefix = 0; // length of common prefix
+			
+			while (itr.hasNext()) { // loop through children
+				key2 = itr.next();
+				commonPrefix = Radix.commonPrefix(key, key2);
+				if (commonPrefix > 0) {
+					break;
+				}
+			}
+			
+			if (commonPrefix == 0) { // no match
+				return null;
+			}
+			
+			if (commonPrefix == key.length()) { // 'key' is a prefix to 'key2' (or equal)
+				return new AbstractMap.SimpleEntry<>(path + key2, curr.children.get(key2));
+			}
+			
+			if (commonPrefix == key2.length()) { // 'key2' is a prefix to 'key'
+				curr = curr.children.get(key2);
+				path = path + key2;
+				key = key.substring(commonPrefix);
+				continue;
+			}
+			
+			// 'key' and 'key2' share a common prefix only
+			return null;
+		}
+		
+		return new AbstractMap.SimpleEntry<>(path, curr);
+	}
+	
+	private static<A> void collect(Node<A> node, String path, BiConsumer<String, ? super A> visitor) {
+		if (node instanceof WithValue<?>) {
+			visitor.accept(path, ((WithValue<A>)node).val);
+		}
+		for (Map.Entry<String, Node<A>> child : node.children.entrySet()) { // children sorted, and their keys start with distinct characters
+			Radix.collect(child.getValue(), path + child.getKey(), visitor);
+		}
+	}
+	
+	private static<A> boolean holdsValue(Node<A> node) {
+		if (node instanceof WithValue<?>) {
+			return true;
+		}
+		for (Node<A> child : node.children.values()) {
+			if (Radix.holdsValue(child)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
 	private static<A> int commonPrefix(String str1, String str2) {
 		int common = 0;
 		int i = -1;
@@ -0,0 +1,434 @@
+package marouenj.tree.radix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * A radix tree partitioned into independent sub-trees (shards), each guarded by its own lock.
+ * A key is routed by its prefix (as computed by the prefix function) to the shard owning the range the prefix falls in.
+ * Shards cover consecutive ranges of prefixes, so operations on different ranges share no lock.
+ * Null Values are not accepted, as null is reserved to denote the non-existence of the key.
+ *
+ * @author marouenj
+ *
+ * @param <A> The generic type of the values
+ */
+public class ShardedRadix<A> {
+
+	/**
+	 * How many times the mean writes of the other shards a shard must take to be split by 'rebalance()'.
+	 */
+	public static final double HOT_FACTOR = 2;
+
+	/**
+	 * The number of shards beyond which 'rebalance()' no longer splits.
+	 */
+	public static final int MAX_SHARDS = 64;
+
+	private final Function<String, String> prefix;
+
+	private final boolean ordered; // 'prefix' preserves the order of the keys
+
+	private volatile TreeMap<String, Shard<A>> shards; // lower bound (inclusive) of the range -> shard, copied on split, never modified once published
+
+	private final Object resize = new Object(); // serializes splits
+
+	/**
+	 * Routes on the whole key.
+	 */
+	public ShardedRadix() {
+		this(key -> key, true);
+	}
+
+	/**
+	 * Routes on the leading characters of the key.
+	 *
+	 * @param length The number of leading characters.
+	 */
+	public ShardedRadix(int length) {
+		this(key -> key.length() > length ? key.substring(0, length) : key, true);
+		if (length < 0) {
+			throw new IllegalArgumentException("length must not be negative: " + length);
+		}
+	}
+
+	/**
+	 * Routes on the prefix computed by the function.
+	 * Scans, 'exist' and 'prefixed' visit every shard, as the function is not known to preserve the order of the keys.
+	 *
+	 * @param prefix Maps a key to the string the shard is picked by.
+	 */
+	public ShardedRadix(Function<String, String> prefix) {
+		this(prefix, false);
+	}
+
+	/**
+	 * Routes on the prefix computed by the function.
+	 * If the function preserves the order of the keys (k1 <= k2 implies prefix(k1) <= prefix(k2)),
+	 * scans, 'exist' and 'prefixed' visit only the shards whose range can hold the prefix, and scans stream each shard's pairs in turn.
+	 * Otherwise, they visit every shard and the pairs are sorted before being visited.
+	 *
+	 * @param prefix Maps a key to the string the shard is picked by.
+	 * @param ordered True if the function preserves the order of the keys.
+	 */
+	public ShardedRadix(Function<String, String> prefix, boolean ordered) {
+		this.prefix = Objects.requireNonNull(prefix, "prefix");
+		this.ordered = ordered;
+		this.shards = new TreeMap<>();
+		this.shards.put("", new Shard<A>("", null));
+	}
+
+	/**
+	 * Checks the existence of the prefix (is possibly a key), as 'Radix.exist' does within each shard.
+	 * An intermediate prefix exists only if the keys sharing it landed in the same shard,
+	 * so the answer for a prefix that is not a key depends on where the shard boundaries fall (see 'prefixed').
+	 *
+	 * @param key The prefix to search for.
+	 * @return True if the prefix exists in a shard.
+	 */
+	public boolean exist(String key) {
+		if (key == null) {
+			return false;
+		}
+
+		return walk(key, tree -> tree.exist(key));
+	}
+
+	/**
+	 * Checks whether at least one key starts with the prefix.
+	 * The answer does not depend on where the shard boundaries fall.
+	 *
+	 * @param prefix
+	 * @return True if a key starts with the prefix.
+	 */
+	public boolean prefixed(String prefix) {
+		if (prefix == null) {
+			return false;
+		}
+
+		return walk(prefix, tree -> tree.prefixed(prefix));
+	}
+
+	/**
+	 * Maps the key to a value if the key exists.
+	 *
+	 * @param key
+	 * @return The value mapped by key. Null if the key does not exist.
+	 */
+	public A get(String key) {
+		if (key == null) {
+			return null;
+		}
+
+		Shard<A> shard = lock(route(key), false);
+		try {
+			return shard.tree.get(key);
+		} finally {
+			shard.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Inserts a node with the specified key/value pair.
+	 * If the Node exists, the value is updated.
+	 *
+	 * @param key
+	 * @param val
+	 * @return True if the operation succeeded. False otherwise.
+	 */
+	public boolean set(String key, A val) {
+		if (key == null) {
+			return false;
+		}
+
+		Shard<A> shard = lock(route(key), true);
+		try {
+			shard.writes++;
+			return shard.tree.set(key, val);
+		} finally {
+			shard.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Upon deleting a key, subsequent calls to 'get' for this 'key' will return null (key non existing).
+	 *
+	 * @param key
+	 * @return True if deletion occurred.
+	 */
+	public boolean del(String key) {
+		if (key == null) {
+			return false;
+		}
+
+		Shard<A> shard = lock(route(key), true);
+		try {
+			shard.writes++;
+			return shard.tree.del(key);
+		} finally {
+			shard.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Collects the key/value pairs whose key starts with the prefix, across shards.
+	 * Each shard is read consistently, but not all shards at the same instant.
+	 *
+	 * @param prefix
+	 * @return The matching pairs, ordered by key.
+	 */
+	public SortedMap<String, A> scan(String prefix) {
+		SortedMap<String, A> entries = new TreeMap<>();
+		scan(prefix, entries::put);
+		return entries;
+	}
+
+	/**
+	 * Visits the key/value pairs whose key starts with the prefix, in key order, across shards.
+	 * The empty prefix visits the whole tree.
+	 * The visitor runs under a shard's read lock (for an order preserving prefix function) and must not modify this tree.
+	 *
+	 * @param prefix
+	 * @param visitor Called once per matching pair.
+	 */
+	public void scan(String prefix, BiConsumer<String, ? super A> visitor) {
+		if (prefix == null) {
+			return;
+		}
+
+		if (ordered) { // shards hold consecutive ranges of keys
+			walk(prefix, tree -> {
+				tree.scan(prefix, visitor);
+				return false;
+			});
+			return;
+		}
+
+		SortedMap<String, A> entries = new TreeMap<>();
+		walk(prefix, tree -> {
+			tree.scan(prefix, entries::put);
+			return false;
+		});
+		entries.forEach(visitor);
+	}
+
+	/**
+	 * @return The number of shards.
+	 */
+	public int shards() {
+		return shards.size();
+	}
+
+	/**
+	 * Splits the shard owning the bound, so that prefixes from the bound onwards move to a new shard.
+	 * Only the shard being split is locked.
+	 *
+	 * @param bound The lower bound (inclusive) of the new shard.
+	 * @return True if a shard was added. False if the bound is already a lower bound.
+	 */
+	public boolean split(String bound) {
+		if (bound == null) {
+			return false;
+		}
+
+		synchronized (resize) {
+			Shard<A> owner = lock(bound, true);
+			try {
+				return splitAt(owner, bound, owner.tree.scan(""));
+			} finally {
+				owner.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Splits the shard with the most writes since the last rebalance if it is hot,
+	 * using 'HOT_FACTOR' and 'MAX_SHARDS'.
+	 *
+	 * @return True if a shard was added.
+	 */
+	public boolean rebalance() {
+		return rebalance(HOT_FACTOR, MAX_SHARDS);
+	}
+
+	/**
+	 * Splits the shard with the most writes since the last rebalance if it is hot:
+	 * it took more than 'factor' times the mean writes of the other shards (a lone shard is hot once written to).
+	 * Under an even load no shard is hot, and no split happens once the tree holds 'maxShards' shards.
+	 * The split falls on the median of the prefixes the shard holds: writes are counted per shard rather than per key,
+	 * so the halves balance the stored prefixes, not the writes themselves.
+	 * Only the shard being split is locked.
+	 *
+	 * @param factor How many times the mean writes of the other shards the hottest shard must exceed.
+	 * @param maxShards The number of shards beyond which no split happens.
+	 * @return True if a shard was added. False if no shard is hot, the tree is full, or the hottest shard holds a single prefix.
+	 */
+	public boolean rebalance(double factor, int maxShards) {
+		synchronized (resize) {
+			TreeMap<String, Shard<A>> table = shards;
+
+			Shard<A> hottest = null;
+			long heat = 0;
+			long total = 0;
+			for (Shard<A> shard : table.values()) {
+				long writes = shard.writes;
+				if (writes - shard.mark > heat) {
+					hottest = shard;
+					heat = writes - shard.mark;
+				}
+				total += writes - shard.mark;
+				shard.mark = writes;
+			}
+
+			if (hottest == null || table.size() >= maxShards) {
+				return false;
+			}
+
+			if (table.size() > 1 && heat <= factor * (total - heat) / (table.size() - 1)) { // not hot relative to the others
+				return false;
+			}
+
+			hottest.lock.writeLock().lock();
+			try {
+				SortedMap<String, A> entries = hottest.tree.scan("");
+
+				TreeSet<String> prefixes = new TreeSet<>();
+				for (String key : entries.keySet()) {
+					prefixes.add(route(key));
+				}
+
+				if (prefixes.size() < 2) {
+					return false;
+				}
+
+				List<String> sorted = new ArrayList<>(prefixes);
+				return splitAt(hottest, sorted.get(sorted.size() / 2), entries);
+			} finally {
+				hottest.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Keeps the pairs routed below the bound in the owner, and moves the others to a new shard.
+	 * Caller must hold 'resize' and the owner's write lock.
+	 */
+	private boolean splitAt(Shard<A> owner, String bound, SortedMap<String, A> entries) {
+		if (owner.lower.equals(bound)) {
+			return false;
+		}
+
+		Shard<A> upper = new Shard<A>(bound, owner.upper);
+		for (Map.Entry<String, A> entry : entries.entrySet()) {
+			if (route(entry.getKey()).compareTo(bound) >= 0) {
+				upper.tree.set(entry.getKey(), entry.getValue());
+				owner.tree.del(entry.getKey());
+			}
+		}
+		owner.upper = bound; // operations waiting on the owner for a moved key retry against the new table
+
+		TreeMap<String, Shard<A>> next = new TreeMap<>(shards);
+		next.put(bound, upper);
+		shards = next;
+		return true;
+	}
+
+	/**
+	 * Visits, in order, the shards whose range can hold keys starting with the prefix, each under its read lock.
+	 * Follows the shards' own bounds rather than a snapshot of the table, so a concurrent split cannot hide keys.
+	 *
+	 * @param visit Returns true to stop.
+	 * @return True if stopped by the visit.
+	 */
+	private boolean walk(String key, Predicate<Radix<A>> visit) {
+		String from = ordered ? route(key) : "";
+		String to = ordered ? after(key) : null; // inclusive, null if unbounded
+
+		String cursor = from;
+		while (cursor != null && (to == null || cursor.compareTo(to) <= 0)) {
+			Shard<A> shard = lock(cursor, false);
+			try {
+				if (visit.test(shard.tree)) {
+					return true;
+				}
+				cursor = shard.upper;
+			} finally {
+				shard.lock.readLock().unlock();
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Keys starting with 'key' sort below the successor of 'key', and so are routed at or below the successor's prefix.
+	 *
+	 * @return The prefix of the successor. Null if there is none.
+	 */
+	private String after(String key) {
+		int end = key.length();
+		while (end > 0 && key.charAt(end - 1) == Character.MAX_VALUE) {
+			end--;
+		}
+		if (end == 0) {
+			return null;
+		}
+		return route(key.substring(0, end - 1) + (char)(key.charAt(end - 1) + 1));
+	}
+
+	/**
+	 * Locks the shard owning the routed prefix.
+	 * A shard's upper bound only moves down, under its write lock, so ownership checked under the lock holds until unlock.
+	 *
+	 * @return The locked shard.
+	 */
+	private Shard<A> lock(String routed, boolean write) {
+		while (true) {
+			Shard<A> shard = shards.floorEntry(routed).getValue();
+			Lock lock = write ? shard.lock.writeLock() : shard.lock.readLock();
+			lock.lock();
+			if (shard.upper == null || routed.compareTo(shard.upper) < 0) {
+				return shard;
+			}
+			lock.unlock(); // split meanwhile
+		}
+	}
+
+	private String route(String key) {
+		String routed = prefix.apply(key);
+		if (routed == null) {
+			throw new NullPointerException("prefix function returned null for key: " + key);
+		}
+		return routed;
+	}
+
+	private static class Shard<A> {
+
+		final Radix<A> tree = new Radix<A>();
+
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		final String lower; // inclusive
+
+		String upper; // exclusive, null if unbounded, guarded by 'lock'
+
+		volatile long writes; // incremented under the write lock
+
+		long mark; // 'writes' as of the last rebalance, guarded by 'resize'
+
+		Shard(String lower, String upper) {
+			this.lower = lower;
+			this.upper = upper;
+		}
+	}
+}
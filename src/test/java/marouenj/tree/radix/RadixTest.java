@@ -346,4 +346,73 @@ public class RadixTest {
 		Assert.assertEquals(TREE.exist("insertions"), true);
 		Assert.assertEquals(TREE.get("insertions"), (Integer)400);
 	}
+	
+	@Test
+	public void del_OneOfTwoKeysAtRoot() {
+		TREE = new Radix<>();
+		
+		TREE.set("abc", 100);
+		TREE.set("xyz", 200);
+		
+		Assert.assertEquals(TREE.del("abc"), true);
+		Assert.assertEquals(TREE.exist("abc"), false);
+		Assert.assertEquals(TREE.get("xyz"), (Integer)200);
+	}
+	
+	@Test
+	public void scan_NullPrefix() {
+		TREE = new Radix<>();
+		Assert.assertEquals(TREE.scan(null).isEmpty(), true);
+	}
+	
+	@Test
+	public void scan_Prefix() {
+		TREE = new Radix<>();
+		
+		TREE.set("insertions", 400);
+		TREE.set("inactive", 100);
+		TREE.set("inserting", 300);
+		TREE.set("insertion", 200);
+		TREE.set("abc", 500);
+		
+		Assert.assertEquals(TREE.scan("").keySet().toString(), "[abc, inactive, inserting, insertion, insertions]");
+		Assert.assertEquals(TREE.scan("in").keySet().toString(), "[inactive, inserting, insertion, insertions]");
+		Assert.assertEquals(TREE.scan("inse").keySet().toString(), "[inserting, insertion, insertions]");
+		Assert.assertEquals(TREE.scan("insertion").keySet().toString(), "[insertion, insertions]");
+		Assert.assertEquals(TREE.scan("insertion").get("insertions"), (Integer)400);
+		Assert.assertEquals(TREE.scan("inx").isEmpty(), true);
+		Assert.assertEquals(TREE.scan("insertionsx").isEmpty(), true);
+	}
+	
+	@Test
+	public void scan_VisitsInKeyOrder() {
+		TREE = new Radix<>();
+		
+		TREE.set("insertions", 400);
+		TREE.set("inactive", 100);
+		TREE.set("in", 300);
+		TREE.set("insertion", 200);
+		
+		StringBuilder visited = new StringBuilder();
+		TREE.scan("in", (key, val) -> visited.append(key).append('=').append(val).append(' '));
+		Assert.assertEquals(visited.toString(), "in=300 inactive=100 insertion=200 insertions=400 ");
+	}
+	
+	@Test
+	public void prefixed_OnlyCountsKeys() {
+		TREE = new Radix<>();
+		Assert.assertEquals(TREE.prefixed(null), false);
+		Assert.assertEquals(TREE.prefixed(""), false);
+		
+		TREE.set("abc", 1);
+		TREE.set("abcxyz", 2);
+		Assert.assertEquals(TREE.prefixed(""), true);
+		Assert.assertEquals(TREE.prefixed("a"), true); // inside the node's key
+		Assert.assertEquals(TREE.prefixed("abcx"), true);
+		Assert.assertEquals(TREE.prefixed("abd"), false);
+		
+		TREE.del("abcxyz");
+		TREE.del("abc");
+		Assert.assertEquals(TREE.prefixed("a"), false);
+	}
 }
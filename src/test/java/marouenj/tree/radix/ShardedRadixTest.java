@@ -0,0 +1,332 @@
+package marouenj.tree.radix;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ShardedRadixTest {
+
+	private static ShardedRadix<Integer> TREE;
+
+	@Test
+	public void nullKey() {
+		TREE = new ShardedRadix<>();
+		Assert.assertEquals(TREE.exist(null), false);
+		Assert.assertEquals(TREE.prefixed(null), false);
+		Assert.assertEquals(TREE.get(null), null);
+		Assert.assertEquals(TREE.set(null, 1), false);
+		Assert.assertEquals(TREE.del(null), false);
+		Assert.assertEquals(TREE.scan(null).isEmpty(), true);
+	}
+
+	@Test(expectedExceptions = IllegalArgumentException.class)
+	public void new_NegativeLength() {
+		new ShardedRadix<Integer>(-1);
+	}
+
+	@Test(expectedExceptions = NullPointerException.class)
+	public void new_NullPrefix() {
+		new ShardedRadix<Integer>(null);
+	}
+
+	@Test(expectedExceptions = NullPointerException.class)
+	public void set_PrefixIsNull() {
+		TREE = new ShardedRadix<>(key -> null);
+		TREE.set("abc", 1);
+	}
+
+	@Test
+	public void split_KeysStayReachable() {
+		TREE = new ShardedRadix<>(1);
+
+		TREE.set("abc", 1);
+		TREE.set("mno", 2);
+		TREE.set("xyz", 3);
+		TREE.set("xy", 4);
+
+		Assert.assertEquals(TREE.split("m"), true);
+		Assert.assertEquals(TREE.split("x"), true);
+		Assert.assertEquals(TREE.split("x"), false);
+		Assert.assertEquals(TREE.shards(), 3);
+
+		Assert.assertEquals(TREE.get("abc"), (Integer)1);
+		Assert.assertEquals(TREE.get("mno"), (Integer)2);
+		Assert.assertEquals(TREE.get("xyz"), (Integer)3);
+		Assert.assertEquals(TREE.get("xy"), (Integer)4);
+		Assert.assertEquals(TREE.get("x"), null);
+
+		TREE.del("mno");
+		Assert.assertEquals(TREE.exist("mno"), false);
+		Assert.assertEquals(TREE.get("abc"), (Integer)1);
+	}
+
+	@Test
+	public void exist_AsInRadix() {
+		TREE = new ShardedRadix<>();
+
+		TREE.set("abc", 1);
+		Assert.assertEquals(TREE.exist("abc"), true);
+		Assert.assertEquals(TREE.exist("a"), false);
+
+		TREE.set("abd", 2);
+		Assert.assertEquals(TREE.exist("ab"), true);
+
+		// the intermediate prefix 'ab' is no longer shared by keys of a single shard
+		Assert.assertEquals(TREE.split("abd"), true);
+		Assert.assertEquals(TREE.exist("ab"), false);
+		Assert.assertEquals(TREE.exist("abc"), true);
+		Assert.assertEquals(TREE.exist("abd"), true);
+	}
+
+	@Test
+	public void prefixed_IndependentOfSplit() {
+		TREE = new ShardedRadix<>();
+
+		TREE.set("abc", 1);
+		TREE.set("abd", 2);
+		Assert.assertEquals(TREE.prefixed("ab"), true);
+		Assert.assertEquals(TREE.prefixed("a"), true);
+		Assert.assertEquals(TREE.prefixed("abd"), true);
+		Assert.assertEquals(TREE.prefixed("abe"), false);
+
+		Assert.assertEquals(TREE.split("abd"), true);
+		Assert.assertEquals(TREE.prefixed("ab"), true);
+		Assert.assertEquals(TREE.prefixed("a"), true);
+		Assert.assertEquals(TREE.prefixed("abd"), true);
+		Assert.assertEquals(TREE.prefixed("abe"), false);
+
+		TREE.del("abd");
+		Assert.assertEquals(TREE.prefixed("abd"), false);
+		Assert.assertEquals(TREE.prefixed("ab"), true);
+	}
+
+	@Test
+	public void scan_MergedAcrossShards() {
+		TREE = new ShardedRadix<>();
+
+		TREE.set("inactive", 100);
+		TREE.set("insertion", 200);
+		TREE.set("inserting", 300);
+		TREE.set("abc", 400);
+		TREE.split("inb");
+		TREE.split("insertio");
+
+		Assert.assertEquals(TREE.shards(), 3);
+		Assert.assertEquals(TREE.scan("").keySet().toString(), "[abc, inactive, inserting, insertion]");
+		Assert.assertEquals(TREE.scan("in").keySet().toString(), "[inactive, inserting, insertion]");
+		Assert.assertEquals(TREE.scan("inserti").get("insertion"), (Integer)200);
+
+		List<String> visited = new ArrayList<>();
+		TREE.scan("", (key, val) -> visited.add(key));
+		Assert.assertEquals(visited.toString(), "[abc, inactive, inserting, insertion]");
+	}
+
+	@Test
+	public void scan_UnorderedPrefix() {
+		TREE = new ShardedRadix<>(key -> key.isEmpty() ? key : key.substring(key.length() - 1)); // routes on the last character
+
+		TREE.set("ab", 1);
+		TREE.set("ba", 2);
+		TREE.set("bb", 3);
+		TREE.set("aa", 4);
+		TREE.split("b");
+
+		Assert.assertEquals(TREE.get("ab"), (Integer)1);
+		Assert.assertEquals(TREE.prefixed("b"), true);
+		Assert.assertEquals(TREE.scan("").keySet().toString(), "[aa, ab, ba, bb]");
+
+		List<String> visited = new ArrayList<>();
+		TREE.scan("b", (key, val) -> visited.add(key));
+		Assert.assertEquals(visited.toString(), "[ba, bb]");
+	}
+
+	@Test
+	public void rebalance_SplitsHottestShard() {
+		TREE = new ShardedRadix<>(2);
+
+		TREE.set("aa", 1);
+		TREE.set("ab", 2);
+		TREE.set("ac", 3);
+		TREE.set("ad", 4);
+
+		Assert.assertEquals(TREE.rebalance(), true);
+		Assert.assertEquals(TREE.shards(), 2);
+
+		TREE.set("ada", 5);
+		TREE.set("adb", 6);
+
+		Assert.assertEquals(TREE.rebalance(), true);
+		Assert.assertEquals(TREE.shards(), 3);
+
+		TREE.set("adc", 7);
+		// hottest shard only holds keys routed to prefix 'ad'
+		Assert.assertEquals(TREE.rebalance(), false);
+		Assert.assertEquals(TREE.shards(), 3);
+
+		Assert.assertEquals(TREE.scan("a").keySet().toString(), "[aa, ab, ac, ad, ada, adb, adc]");
+	}
+
+	@Test
+	public void rebalance_NoWritesSinceLastRebalance() {
+		TREE = new ShardedRadix<>();
+		Assert.assertEquals(TREE.rebalance(), false);
+
+		TREE.set("a", 1);
+		TREE.set("b", 2);
+		TREE.set("c", 3);
+
+		Assert.assertEquals(TREE.rebalance(), true);
+		Assert.assertEquals(TREE.rebalance(), false);
+		Assert.assertEquals(TREE.shards(), 2);
+	}
+
+	@Test
+	public void rebalance_EvenLoadDoesNotSplit() {
+		TREE = new ShardedRadix<>(1);
+		TREE.split("b");
+		TREE.split("c");
+		TREE.split("d");
+
+		for (int round = 0; round < 10; round++) {
+			for (char c = 'a'; c <= 'd'; c++) {
+				for (int i = 0; i < 100; i++) {
+					TREE.set(String.valueOf(c) + i, i + round);
+				}
+			}
+			Assert.assertEquals(TREE.rebalance(), false);
+		}
+		Assert.assertEquals(TREE.shards(), 4);
+	}
+
+	@Test
+	public void rebalance_HotRelativeToOthers() {
+		TREE = new ShardedRadix<>();
+		TREE.split("b");
+		TREE.split("c");
+
+		for (int i = 0; i < 100; i++) {
+			TREE.set("a" + i, i);
+			TREE.set("b" + i, i);
+			TREE.set("c" + i, i);
+		}
+		for (int i = 0; i < 100; i++) {
+			TREE.set("b" + i, -i); // 'b' takes twice the writes of each other shard
+		}
+		Assert.assertEquals(TREE.rebalance(), false); // not more than 2 times the mean
+
+		for (int i = 0; i < 300; i++) {
+			TREE.set("b" + (i % 100), i);
+		}
+		TREE.set("a0", 0);
+		Assert.assertEquals(TREE.rebalance(ShardedRadix.HOT_FACTOR, 3), false); // hot, but the tree is full
+		Assert.assertEquals(TREE.shards(), 3);
+
+		for (int i = 0; i < 300; i++) {
+			TREE.set("b" + (i % 100), i);
+		}
+		TREE.set("a0", 0);
+		Assert.assertEquals(TREE.rebalance(), true);
+		Assert.assertEquals(TREE.shards(), 4);
+		Assert.assertEquals(TREE.get("b99"), (Integer)299);
+		Assert.assertEquals(TREE.get("b0"), (Integer)200);
+	}
+
+	@Test(timeOut = 10000)
+	public void set_DifferentShardsDoNotSerialize() throws InterruptedException {
+		TREE = new ShardedRadix<>(1);
+		TREE.split("b");
+		TREE.set("a1", 1);
+
+		CountDownLatch otherShard = new CountDownLatch(1);
+		CountDownLatch sameShard = new CountDownLatch(1);
+		Thread other = new Thread(() -> {
+			TREE.set("b1", 2);
+			otherShard.countDown();
+		});
+		Thread same = new Thread(() -> {
+			TREE.set("a2", 3);
+			sameShard.countDown();
+		});
+
+		boolean[] observed = new boolean[2];
+		TREE.scan("a", (key, val) -> { // holds the read lock of shard 'a'
+			same.start();
+			while (same.getState() != Thread.State.WAITING) { // parked on the lock of shard 'a'
+				Thread.yield();
+			}
+			other.start();
+			try {
+				observed[0] = otherShard.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				throw new IllegalStateException(e);
+			}
+			observed[1] = sameShard.getCount() == 0;
+		});
+		same.join();
+		other.join();
+
+		Assert.assertEquals(observed[0], true); // write to shard 'b' went through
+		Assert.assertEquals(observed[1], false); // write to shard 'a' waited
+		Assert.assertEquals(TREE.get("a2"), (Integer)3);
+		Assert.assertEquals(TREE.get("b1"), (Integer)2);
+	}
+
+	@Test(timeOut = 10000)
+	public void set_ConcurrentWritersAroundSplit() throws Exception {
+		TREE = new ShardedRadix<>();
+
+		CyclicBarrier barrier = new CyclicBarrier(4);
+		List<Thread> writers = new ArrayList<>();
+		for (char c = 'a'; c <= 'c'; c++) {
+			final String head = String.valueOf(c);
+			Thread writer = new Thread(() -> {
+				try {
+					for (int i = 0; i < 500; i++) {
+						TREE.set(head + i, i);
+					}
+					barrier.await(); // shards split here
+					barrier.await();
+					for (int i = 500; i < 1000; i++) {
+						TREE.set(head + i, i);
+					}
+					for (int i = 0; i < 1000; i += 10) {
+						TREE.set(head + i, -i);
+						TREE.del(head + (i + 5));
+					}
+				} catch (Exception e) {
+					throw new IllegalStateException(e);
+				}
+			});
+			writers.add(writer);
+			writer.start();
+		}
+
+		barrier.await();
+		Assert.assertEquals(TREE.rebalance(), true);
+		Assert.assertEquals(TREE.split("c"), true);
+		Assert.assertEquals(TREE.shards(), 3);
+		barrier.await();
+		for (Thread writer : writers) {
+			writer.join();
+		}
+
+		int size = 0;
+		for (char c = 'a'; c <= 'c'; c++) {
+			for (int i = 0; i < 1000; i++) {
+				String key = String.valueOf(c) + i;
+				Integer val = i % 10 == 5 ? null : i % 10 == 0 ? -i : i;
+				Assert.assertEquals(TREE.get(key), val, key);
+				if (val != null) {
+					Assert.assertEquals(TREE.scan(key).get(key), val, key);
+					size++;
+				}
+			}
+		}
+		Assert.assertEquals(TREE.scan("").size(), size);
+	}
+}